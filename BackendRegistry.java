@@ -0,0 +1,46 @@
+package catchmind;
+
+//BackendRegistry.java
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.*;
+
+// 게이트웨이가 쓰는 백엔드 서버 목록 -> 서비스 디스커버리 대신 같은 프로세스 안에서 등록/해제
+public class BackendRegistry {
+ // 백엔드 추가/제거 알림
+ public interface Listener {
+     void backendJoined(String backend);
+     void backendLeft(String backend);
+ }
+
+ private final Set<String> backends = new CopyOnWriteArraySet<>(); // "host:port" 형식의 백엔드 주소
+ private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+ public Set<String> getBackends() {
+     return Collections.unmodifiableSet(backends);
+ }
+
+ public void addListener(Listener listener) {
+     listeners.add(listener);
+ }
+
+ // 백엔드 등록
+ public void register(String backend) {
+     if (backends.add(backend)) {
+         System.out.println("백엔드 추가: " + backend);
+         for (Listener listener : listeners) {
+             listener.backendJoined(backend);
+         }
+     }
+ }
+
+ // 백엔드 해제
+ public void deregister(String backend) {
+     if (backends.remove(backend)) {
+         System.out.println("백엔드 제거: " + backend);
+         for (Listener listener : listeners) {
+             listener.backendLeft(backend);
+         }
+     }
+ }
+}
@@ -7,6 +7,11 @@ import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 import java.net.*;
+import java.util.Base64;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
 
 public class Client {
  // GUI 컴포넌트
@@ -17,10 +22,19 @@ public class Client {
   private JLabel timerLabel;
   private JLabel wordLabel;
   private JTextArea scoresArea;
+  private JPanel galleryPanel;   // 게임 종료 팝업의 라운드별 그림 목록
+  private final Map<String, String[]> thumbParts = new HashMap<>();   // 나눠서 도착하는 썸네일 조각 (수신 스레드에서만 사용)
   
-  // 소켓, 데이터스트림
-  private Socket socket;
-  private DataOutputStream output;
+  // 소켓, 데이터스트림 -> 다시 접속하면 새로 만듦
+  private volatile Socket socket;
+  private volatile DataOutputStream output;
+
+  // 접속 정보 (다시 접속할 때 같은 게임방 키 사용)
+  private final String serverAddress;
+  private final int serverPort;
+  private final String roomKey;
+  private final int maxReconnectAttempts = 10;
+  private final long reconnectDelayMillis = 2000;
  
   // 그림 그리기의 좌표, 색상, 모드
   private int lastX = -1, lastY = -1;
@@ -34,11 +48,12 @@ public class Client {
   // 그리기 모드 정의(그리기, 지우기, 빈 사각형, 채워진 사각형, 빈 원, 채워진 원
   private enum Mode { DRAW, ERASE, RECTANGLE, FILLED_RECTANGLE, OVAL, FILLED_OVAL }
 
-  public Client(String serverAddress, int serverPort) {
+  public Client(String serverAddress, int serverPort, String roomKey) {
+      this.serverAddress = serverAddress;
+      this.serverPort = serverPort;
+      this.roomKey = roomKey;
       try {
-         // 서버에 연결
-          socket = new Socket(serverAddress, serverPort);
-          output = new DataOutputStream(socket.getOutputStream());
+          connect();
           setupUI();
           new Thread(this::listenToServer).start();
       } catch (IOException e) {
@@ -284,8 +299,7 @@ public class Client {
   private void sendDrawCommand(int startX, int startY, int endX, int endY) {
       try {
          // 시작과 끝 좌표, 색상 정보
-          output.writeUTF("DRAW " + startX + " " + startY + " " + endX + " " + endY + " " + currentColor.getRGB());
-          output.flush();
+          send("DRAW " + startX + " " + startY + " " + endX + " " + endY + " " + currentColor.getRGB());
       } catch (IOException e) {
           e.printStackTrace();
       }
@@ -294,8 +308,7 @@ public class Client {
   private void sendShapeCommand(int x, int y, int width, int height, String shapeType) {
       try {
          // 도형 타입, 왼쪽 상단 좌표, 너비, 높이, 색상 정보
-          output.writeUTF("SHAPE " + shapeType + " " + x + " " + y + " " + width + " " + height + " " + currentColor.getRGB());
-          output.flush();
+          send("SHAPE " + shapeType + " " + x + " " + y + " " + width + " " + height + " " + currentColor.getRGB());
       } catch (IOException e) {
           e.printStackTrace();
       }
@@ -304,8 +317,7 @@ public class Client {
   private void sendEraseCommand(int x, int y, int brushSize) {
       try {
          // 지우개 중심 좌표, 지우개 크기 정보
-          output.writeUTF("ERASE " + x + " " + y + " " + brushSize);
-          output.flush();
+          send("ERASE " + x + " " + y + " " + brushSize);
       } catch (IOException e) {
           e.printStackTrace();
       }
@@ -315,16 +327,98 @@ public class Client {
       String message = chatInput.getText();
       if (!message.isEmpty()) {
           try {
-              output.writeUTF("CHAT " + message);
-              output.flush();
+              send("CHAT " + message);
               chatInput.setText("");
           } catch (IOException e) {
               e.printStackTrace();
           }
       }
   }
-  // 서버로부터 메시지 수신 후 처리
+  // 게임 종료 팝업의 갤러리에 썸네일 추가 (이미지가 없으면 글자만)
+  private void addGalleryItem(String caption, Image thumbnail) {
+      SwingUtilities.invokeLater(() -> {
+          if (galleryPanel == null) return;
+          JLabel thumbLabel = thumbnail != null
+                  ? new JLabel(caption, new ImageIcon(thumbnail), SwingConstants.CENTER)
+                  : new JLabel(caption, SwingConstants.CENTER);
+          thumbLabel.setVerticalTextPosition(SwingConstants.BOTTOM);
+          thumbLabel.setHorizontalTextPosition(SwingConstants.CENTER);
+          galleryPanel.add(thumbLabel);
+          galleryPanel.revalidate();
+          galleryPanel.repaint();
+      });
+  }
+  // 서버에 라운드 썸네일 요청
+  private void sendThumbnailRequest(String roomId, String round, String size) {
+      try {
+          send("THUMB " + roomId + " " + round + " " + size);
+      } catch (IOException e) {
+          e.printStackTrace();
+      }
+  }
+  // 서버에 다음 게임 매칭 요청
+  private void requestNextMatch() {
+      try {
+          send("QUEUE");
+      } catch (IOException e) {
+          e.printStackTrace();
+      }
+  }
+  // 서버에 메시지 전송 -> 그림판(EDT)과 서버 메시지 수신 스레드가 함께 쓰므로 한 메시지씩 동기화해서 씀
+  private synchronized void send(String message) throws IOException {
+      output.writeUTF(message);
+      output.flush();
+  }
+  // 서버에 연결
+  private void connect() throws IOException {
+      Socket newSocket = new Socket(serverAddress, serverPort);
+      DataOutputStream newOutput = new DataOutputStream(newSocket.getOutputStream());
+      // 첫 메시지로 게임방 키 전송 -> 게이트웨이가 이 키로 백엔드 서버를 고름 (빈 키는 공개 대기열)
+      newOutput.writeUTF("ROOM " + roomKey);
+      newOutput.flush();
+      socket = newSocket;
+      output = newOutput;
+  }
+  // 연결이 끊기면 같은 게임방 키로 다시 접속 -> 게이트웨이가 남은 백엔드 서버로 배정함
+  private boolean reconnect() {
+      try {
+          socket.close();
+      } catch (IOException e) {
+          // 이미 닫힘
+      }
+      currentDrawer = "";
+      SwingUtilities.invokeLater(() -> chatArea.append("서버와 연결이 끊어졌습니다. 다시 연결하는 중...\n"));
+      for (int attempt = 1; attempt <= maxReconnectAttempts; attempt++) {
+          try {
+              Thread.sleep(reconnectDelayMillis);
+              connect();
+              SwingUtilities.invokeLater(() -> chatArea.append("서버에 다시 연결되었습니다.\n\n"));
+              return true;
+          } catch (IOException e) {
+              System.out.println("다시 연결 실패 (" + attempt + "/" + maxReconnectAttempts + "): " + e.getMessage());
+          } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              return false;
+          }
+      }
+      SwingUtilities.invokeLater(() -> chatArea.append("서버에 다시 연결하지 못했습니다.\n"));
+      return false;
+  }
+  // 서버로부터 메시지 수신 -> 연결이 끊기면 다시 접속해서 계속 수신
   private void listenToServer() {
+      while (true) {
+          try {
+              receiveMessages();
+          } catch (IOException e) {
+              e.printStackTrace();
+          }
+          if (!reconnect()) {
+              return;
+          }
+      }
+  }
+  // 서버로부터 메시지 수신 후 처리
+  private void receiveMessages() throws IOException {
       try (DataInputStream input = new DataInputStream(socket.getInputStream())) {
           while (true) {
               String serverMessage = input.readUTF();
@@ -385,6 +479,38 @@ public class Client {
                       g.setColor(Color.WHITE);
                       g.fillRect(x - brushSize / 2, y - brushSize / 2, brushSize, brushSize);
                   });
+              } else if (serverMessage.startsWith("ERASE_PATH ")) {   // ERASE_PATH 로 시작하는 명령일 경우
+                 // 메시지 파싱 -> 지우개 크기, 지우개 중심 좌표들 -> 좌표마다 ERASE와 똑같이 자국을 찍음
+                  String[] eraseCommand = serverMessage.substring(11).split(" ");
+                  int brushSize = Integer.parseInt(eraseCommand[0]);
+                  int[] xs = new int[(eraseCommand.length - 1) / 2];
+                  int[] ys = new int[xs.length];
+                  for (int i = 0; i < xs.length; i++) {
+                      xs[i] = Integer.parseInt(eraseCommand[1 + i * 2]);
+                      ys[i] = Integer.parseInt(eraseCommand[2 + i * 2]);
+                  }
+                  SwingUtilities.invokeLater(() -> {
+                      Graphics g = drawingPanel.getGraphics();
+                      g.setColor(Color.WHITE);
+                      for (int i = 0; i < xs.length; i++) {
+                          g.fillRect(xs[i] - brushSize / 2, ys[i] - brushSize / 2, brushSize, brushSize);
+                      }
+                  });
+              } else if (serverMessage.startsWith("DRAW_PATH ")) {   // DRAW_PATH 로 시작하는 명령일 경우
+                 // 메시지 파싱 -> 색상, 꺾은선 좌표들
+                  String[] drawCommand = serverMessage.substring(10).split(" ");
+                  Color lineColor = new Color(Integer.parseInt(drawCommand[0]));
+                  int[] xs = new int[(drawCommand.length - 1) / 2];
+                  int[] ys = new int[xs.length];
+                  for (int i = 0; i < xs.length; i++) {
+                      xs[i] = Integer.parseInt(drawCommand[1 + i * 2]);
+                      ys[i] = Integer.parseInt(drawCommand[2 + i * 2]);
+                  }
+                  SwingUtilities.invokeLater(() -> {
+                      Graphics g = drawingPanel.getGraphics();
+                      g.setColor(lineColor);
+                      g.drawPolyline(xs, ys, xs.length);
+                  });
               } else if (serverMessage.startsWith("TIMER ")) {   // TIMER 로 시작하는 명령일 경우
                   String timerMessage = serverMessage.substring(6);
                   // 타이머 라벨 업데이트
@@ -431,13 +557,46 @@ public class Client {
                   // 게임 종료 메시지를 감지하면 팝업 창 띄우기
                   SwingUtilities.invokeLater(() -> {
                       timerLabel.setText("");
-                      JOptionPane.showMessageDialog(frame, "게임이 종료되었습니다.\n\n" + extractRankingInfo(serverMessage),"게임 종료", JOptionPane.INFORMATION_MESSAGE);
-              
+                      // 썸네일은 팝업이 열린 뒤에 도착하므로 빈 갤러리를 먼저 넣어 둠
+                      galleryPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+                      JScrollPane galleryScroll = new JScrollPane(galleryPanel);
+                      galleryScroll.setPreferredSize(new Dimension(480, 150));
+                      Object[] popupContents = {"게임이 종료되었습니다.\n\n" + extractRankingInfo(serverMessage), galleryScroll};
+                      JOptionPane.showMessageDialog(frame, popupContents,"게임 종료", JOptionPane.INFORMATION_MESSAGE);
+                      requestNextMatch();   // 팝업을 닫으면 다음 게임 매칭 대기열에 다시 들어감
                   });
+              } else if (serverMessage.startsWith("GALLERY ")) {   // GALLERY 로 시작하는 명령일 경우
+                 // 메시지 파싱 -> 게임방 번호, "라운드:제시어" 목록 -> 라운드마다 작은 썸네일 요청
+                  String[] galleryCommand = serverMessage.substring(8).trim().split(" ");
+                  for (int i = 1; i < galleryCommand.length; i++) {
+                      String round = galleryCommand[i].split(":")[0];
+                      sendThumbnailRequest(galleryCommand[0], round, "SMALL");
+                  }
+              } else if (serverMessage.startsWith("THUMB ")) {   // THUMB 로 시작하는 명령일 경우
+                 // 메시지 파싱 -> 게임방 번호, 라운드, 크기, 조각 순번, 조각 개수, 제시어, Base64 PNG 조각
+                 // 잘못된 썸네일은 그 메시지만 건너뛰고 계속 수신
+                  try {
+                      String[] thumbCommand = serverMessage.substring(6).split(" ", 7);
+                      String thumbKey = thumbCommand[0] + " " + thumbCommand[1] + " " + thumbCommand[2];
+                      int index = Integer.parseInt(thumbCommand[3]);
+                      int count = Integer.parseInt(thumbCommand[4]);
+                      String[] parts = thumbParts.computeIfAbsent(thumbKey, k -> new String[count]);
+                      parts[index] = thumbCommand[6];
+                      if (!Arrays.asList(parts).contains(null)) {   // 조각이 모두 모이면 이미지로 변환
+                          thumbParts.remove(thumbKey);
+                          Image thumbnail = ImageIO.read(new ByteArrayInputStream(Base64.getDecoder().decode(String.join("", parts))));
+                          addGalleryItem(thumbCommand[1] + "라운드: " + thumbCommand[5], thumbnail);
+                      }
+                  } catch (IOException | RuntimeException e) {
+                      System.out.println("썸네일 수신 실패: " + e.getMessage());
+                  }
+              } else if (serverMessage.startsWith("THUMB_FAIL ")) {   // THUMB_FAIL 로 시작하는 명령일 경우
+                 // 메시지 파싱 -> 게임방 번호, 라운드 -> 그림 대신 안내 문구 표시
+                  String[] failCommand = serverMessage.substring(11).split(" ");
+                  thumbParts.remove(serverMessage.substring(11));
+                  addGalleryItem((failCommand.length > 1 ? failCommand[1] : "?") + "라운드: 그림 없음", null);
               }
           }
-      } catch (IOException e) {
-          e.printStackTrace();
       }
   }
 
@@ -450,8 +609,9 @@ public class Client {
   }
   
   public static void main(String[] args) {
-      String serverAddress = "localhost"; // 서버 주소
-      int serverPort = 54321;  // 포트 번호
-      new Client(serverAddress, serverPort);
+      String serverAddress = args.length > 0 ? args[0] : "localhost"; // 서버 주소
+      int serverPort = args.length > 1 ? Integer.parseInt(args[1]) : 54321;  // 포트 번호
+      String roomKey = args.length > 2 ? args[2] : "";  // 친구끼리 같은 게임방 키를 쓰면 함께 매칭됨
+      new Client(serverAddress, serverPort, roomKey);
   }
 }
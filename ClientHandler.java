@@ -5,71 +5,161 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.Socket;
-import java.util.Map;
+import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ClientHandler implements Runnable {
  private final Socket clientSocket;
  private final String userName;
  private final DataOutputStream output;
  private final Server server;
+ private volatile GameRoom room; // 들어가 있는 게임방 (매칭 대기 중이면 null)
+ private volatile boolean closed = false; // 연결 종료 여부
+ private static final int THUMB_CHUNK_SIZE = 60000; // 썸네일 메시지 하나에 담을 Base64 글자 수 (writeUTF 최대 65535바이트)
+ private final AtomicBoolean queued = new AtomicBoolean(false); // 매칭 대기열에 들어가 있는지 여부
+ private volatile String roomKey = ""; // 클라이언트가 고른 게임방 키 (없으면 공개 대기열)
+ private final ExecutorService thumbnailSender; // 썸네일 전송 전용 스레드 -> 느린 클라이언트가 렌더링 워커를 붙잡지 않음
 
  public ClientHandler(Socket socket, String userName, Server server) throws IOException {
      this.clientSocket = socket;
      this.userName = userName;
      this.output = new DataOutputStream(socket.getOutputStream());
      this.server = server;
+     this.thumbnailSender = Executors.newSingleThreadExecutor(r -> {
+         Thread thread = new Thread(r, "thumbnail-send-" + userName);
+         thread.setDaemon(true);
+         return thread;
+     });
  }
- 
+
  public String getUserName() {
      return userName;
  }
 
+ public void setRoom(GameRoom room) {
+     this.room = room;
+     queued.set(false);   // 게임방에 들어가면 대기열에서 빠진 것으로 처리
+     if (closed) {   // 게임방이 정해지는 사이 연결이 끊겼으면 여기서 퇴장 처리
+         room.removeClient(this);
+     }
+ }
+
+ // 대기열 입장 표시 -> 이미 대기 중이면 false
+ public boolean markQueued() {
+     return queued.compareAndSet(false, true);
+ }
+
+ public String getRoomKey() {
+     return roomKey;
+ }
+
+ public boolean isClosed() {
+     return closed;
+ }
+
  public void run() {
      try (DataInputStream input = new DataInputStream(clientSocket.getInputStream())) {
          send("USERNAME " + userName);
-         String inputLine;
-         while ((inputLine = input.readUTF()) != null) {  
-             if (inputLine.startsWith("CHAT ")) {   // CHAT으로 시작하는 메시지인 경우
+         String inputLine = input.readUTF();
+         // 첫 메시지가 ROOM이면 같은 게임방 키를 보낸 사람끼리 매칭
+         if (inputLine.startsWith("ROOM ")) {
+             roomKey = inputLine.substring(5).trim();
+             inputLine = "";
+         }
+         server.getMatchmaker().enqueue(this);   // 매칭 대기열에 입장
+         do {
+             GameRoom room = this.room;
+             if (inputLine.isEmpty()) {
+                 continue;
+             } else if (inputLine.equals("QUEUE")) {   // 게임이 끝난 뒤 다시 매칭을 요청한 경우 (이미 대기 중이면 Matchmaker가 무시)
+                 if (room == null || room.isFinished()) {
+                     if (room != null) {
+                         room.removeClient(this);
+                         this.room = null;
+                     }
+                     server.getMatchmaker().enqueue(this);
+                 }
+             } else if (inputLine.startsWith("THUMB ")) {   // 라운드 썸네일 요청 (THUMB 게임방번호 라운드 크기)
+                 sendThumbnail(inputLine.substring(6).split(" "));
+             } else if (room == null) {   // 매칭 대기 중에는 게임 메시지 무시
+                 if (inputLine.startsWith("CHAT ")) {
+                     send("CHAT 아직 매칭 중입니다. 잠시만 기다려 주세요.");
+                 }
+             } else if (inputLine.startsWith("CHAT ")) {   // CHAT으로 시작하는 메시지인 경우
                  String message = inputLine.substring(5);
                  // 메시지 파싱 -> 정답 맞힌 경우
-                 if (!server.getCurrentDrawer().getUserName().equals(userName) &&
-                         message.equalsIgnoreCase(server.getCurrentWord()) &&
-                         !server.getCorrectGuessers().contains(userName)) {
-                    server.getCorrectGuessers().add(userName);
+                 if (!room.getDrawRelay().isDrawer(userName) &&
+                         message.equalsIgnoreCase(room.getCurrentWord()) &&
+                         !room.getCorrectGuessers().contains(userName)) {
+                    room.getCorrectGuessers().add(userName);
                      // 첫 정답자에게는 +15점, 그 이후는 +10점 부여
-                    server.updateScore(userName, server.getCorrectGuessers().size() == 1 ? 15 : 10);
+                    room.updateScore(userName, room.getCorrectGuessers().size() == 1 ? 15 : 10);
                      send("CHAT 정답을 맞추셨습니다!");
-                     server.broadcastMessage("CHAT " + userName + "님이 정답을 맞추셨습니다!");
+                     room.broadcastMessage("CHAT " + userName + "님이 정답을 맞추셨습니다!");
                  } else {
-                    server.broadcastMessage("CHAT " + userName + ": " + message);
+                    room.broadcastMessage("CHAT " + userName + ": " + message);
                  }
              } else if (inputLine.startsWith("DRAW ") || inputLine.startsWith("SHAPE ") || inputLine.startsWith("ERASE ")) {   // DRAW, SHAPE, ERASE로 시작하는 메시지인 경우
-                if (server.getCurrentDrawer().getUserName().equals(userName)) {
-                   server.broadcastMessage(inputLine);
-                 }
+                // 그리기 담당자 확인, 기록, 중계를 DrawRelay가 한 번에 처리 -> 라운드가 바뀌는 사이 명령이 다음 라운드로 넘어가지 않음
+                room.getDrawRelay().relay(userName, inputLine);
              }
-         }
+         } while ((inputLine = input.readUTF()) != null);
      } catch (IOException e) {
          System.out.println(userName + "의 연결이 끊어졌습니다.");
      } finally {
-        server.getClients().remove(this);
-        server.getScores().remove(userName);
-        server.broadcastScoreUpdate();
+        closed = true; // 대기열에 있던 경우 매칭 스레드가 제외시킴
+        GameRoom room = this.room;
+        if (room != null) {
+            room.removeClient(this);
+        }
+        thumbnailSender.shutdownNow();
          try {
              clientSocket.close();
          } catch (IOException e) {
              e.printStackTrace();
          }
-         server.broadcastMessage("CHAT " + userName + "님이 퇴장하셨습니다.");
      }
  }
- 
- // 클라이언트에게 메시지 전송
- public void send(String message) {
+
+ // 썸네일 PNG를 Base64로 전송 -> 인코딩이 끝나면 이 클라이언트의 전송 스레드에서 보내므로 읽기 스레드와 렌더링 워커는 기다리지 않음
+ // writeUTF 한 번에 보낼 수 있는 크기를 넘으면 나눠서 보냄: THUMB 게임방번호 라운드 크기 순번 개수 제시어 Base64조각
+ // 썸네일을 줄 수 없으면 THUMB_FAIL 게임방번호 라운드 크기
+ private void sendThumbnail(String[] request) {
+     String requestId = String.join(" ", request);
+     try {
+         int roomId = Integer.parseInt(request[0]);
+         int round = Integer.parseInt(request[1]);
+         ThumbnailRenderer.Size size = ThumbnailRenderer.Size.valueOf(request[2]);
+         ThumbnailRenderer renderer = server.getThumbnailRenderer();
+         renderer.getPng(roomId, round, size).whenCompleteAsync((png, error) -> {
+             if (error != null) {
+                 System.out.println("썸네일 요청 실패: " + userName + " " + error.getMessage());
+                 send("THUMB_FAIL " + requestId);
+                 return;
+             }
+             String encoded = Base64.getEncoder().encodeToString(png);
+             int count = (encoded.length() + THUMB_CHUNK_SIZE - 1) / THUMB_CHUNK_SIZE;
+             String header = "THUMB " + requestId + " ";
+             String word = renderer.getWord(roomId, round);
+             for (int i = 0; i < count; i++) {
+                 String chunk = encoded.substring(i * THUMB_CHUNK_SIZE, Math.min(encoded.length(), (i + 1) * THUMB_CHUNK_SIZE));
+                 send(header + i + " " + count + " " + word + " " + chunk);
+             }
+         }, thumbnailSender);
+     } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+         System.out.println("잘못된 썸네일 요청: " + userName);
+         send("THUMB_FAIL " + requestId);
+     }
+ }
+
+ // 클라이언트에게 메시지 전송 -> 게임방 타이머, 매칭 스레드 등 여러 스레드에서 호출되므로 동기화
+ public synchronized void send(String message) {
      try {
          output.writeUTF(message);
      } catch (IOException e) {
          System.out.println("메시지 전송 실패: " + userName + " " + e.getMessage());
      }
  }
-}
\ No newline at end of file
+}
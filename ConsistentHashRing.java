@@ -0,0 +1,65 @@
+package catchmind;
+
+//ConsistentHashRing.java
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+// 게임방 키를 백엔드 서버에 배정하는 일관된 해싱 링
+// 백엔드가 추가되거나 빠져도 그 백엔드 몫의 키만 옮겨가고 나머지 배정은 그대로 유지됨
+public class ConsistentHashRing {
+ private final TreeMap<Long, String> ring = new TreeMap<>(); // 해시값 -> 백엔드 주소
+ private final Set<String> nodes = new HashSet<>(); // 링에 올라간 백엔드 목록
+
+ // 백엔드 하나를 여러 가상 노드로 나눠 링에 고르게 퍼뜨림
+ public ConsistentHashRing(Collection<String> backends, int virtualNodes) {
+     for (String backend : backends) {
+         nodes.add(backend);
+         for (int i = 0; i < virtualNodes; i++) {
+             ring.put(hash(backend + "#" + i), backend);
+         }
+     }
+ }
+
+ public Set<String> getNodes() {
+     return Collections.unmodifiableSet(nodes);
+ }
+
+ // 키의 해시값부터 시계 방향으로 만나는 백엔드를 중복 없이 차례대로 반환 -> 앞 백엔드에 연결이 안 되면 다음 후보 사용
+ public List<String> routeAll(String key) {
+     List<String> candidates = new ArrayList<>();
+     if (ring.isEmpty()) {
+         return candidates;
+     }
+     long h = hash(key);
+     for (String backend : ring.tailMap(h, true).values()) {
+         if (!candidates.contains(backend)) {
+             candidates.add(backend);
+         }
+     }
+     for (String backend : ring.headMap(h, false).values()) {
+         if (candidates.size() == nodes.size()) {
+             break;
+         }
+         if (!candidates.contains(backend)) {
+             candidates.add(backend);
+         }
+     }
+     return candidates;
+ }
+
+ // MD5 앞 8바이트를 해시값으로 사용
+ private static long hash(String key) {
+     try {
+         byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+         long h = 0;
+         for (int i = 0; i < 8; i++) {
+             h = (h << 8) | (digest[i] & 0xff);
+         }
+         return h;
+     } catch (NoSuchAlgorithmException e) {
+         throw new IllegalStateException(e);
+     }
+ }
+}
@@ -0,0 +1,252 @@
+package catchmind;
+
+//DrawRelay.java
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 그리기 담당자가 보낸 DRAW/SHAPE/ERASE 명령을 게임방에 중계하는 클래스
+// 짧은 시간 안에 들어온 명령을 하나의 메시지로 합치고, 초당 중계 횟수를 제한해서 전송량을 줄임
+//   ERASE x y 크기 ...   -> ERASE_PATH 크기 x1 y1 x2 y2 ... (지우개 자국 목록, 양옆 자국에 완전히 덮이는 자국은 생략)
+//   DRAW x1 y1 x2 y2 색상 -> DRAW_PATH 색상 x0 y0 x1 y1 ... (이어진 선분을 꺾은선 하나로)
+//   같은 SHAPE가 연달아 오면 한 번만 중계
+public class DrawRelay {
+ private final GameRoom room; // 중계할 게임방
+ private final ScheduledExecutorService scheduler; // 모아 둔 명령을 보내는 스레드
+ private final long windowMillis = 30; // 명령을 모으는 시간
+ private final int maxMessagesPerSecond = 40; // 초당 최대 중계 메시지 수
+ private final int maxPoints = 200; // 메시지 하나에 담을 최대 좌표 수
+
+ private volatile String drawerName; // 이번 라운드 그리기 담당자 -> 라운드마다 한 번만 정함
+
+ // 아직 보내지 않은 명령 (한 종류만 모아 둠)
+ private String pendingKind; // "ERASE", "DRAW", "SHAPE" 또는 null
+ private int pendingSize; // 지우개 크기
+ private String pendingColor; // 선 색상
+ private String pendingShape; // 도형 명령 원문
+ private final int[] pointsX = new int[maxPoints];
+ private final int[] pointsY = new int[maxPoints];
+ private int pointCount = 0;
+ private boolean flushScheduled = false;
+
+ // 초당 중계 횟수 제한 (토큰 버킷) -> 모든 전송이 토큰을 하나씩 써야 하므로 0 아래로 내려가지 않음
+ private double tokens = maxMessagesPerSecond;
+ private long lastRefill = System.nanoTime();
+
+ public DrawRelay(GameRoom room, ScheduledExecutorService scheduler) {
+     this.room = room;
+     this.scheduler = scheduler;
+ }
+
+ // 라운드 종료 -> 남은 명령을 보내고 그리기 담당자를 비움 (이후 들어온 명령은 중계도 기록도 안 됨)
+ public synchronized void endRound() {
+     if (pendingKind != null) {
+         room.broadcastMessage(takePending());   // 라운드가 끝날 때 남은 메시지 하나는 제한 없이 보냄
+     }
+     drawerName = null;
+ }
+
+ // 라운드 시작 -> 새 그리기 담당자 지정
+ public synchronized void startRound(String drawerName) {
+     tokens = maxMessagesPerSecond;   // 새 그리기 담당자는 가득 찬 버킷으로 시작
+     lastRefill = System.nanoTime();
+     this.drawerName = drawerName;
+ }
+
+ public String getDrawerName() {
+     return drawerName;
+ }
+
+ public boolean isDrawer(String userName) {
+     return userName.equals(drawerName);
+ }
+
+ // 그리기 명령 중계 -> 모아 둔 명령을 먼저 보내야 하는데 토큰이 없으면 그리기 담당자의 읽기 스레드만 기다림
+ // 기다리는 사이 라운드가 바뀔 수 있으므로 락을 잡을 때마다 그리기 담당자인지 다시 확인하고, 중계가 정해진 명령만 썸네일용으로 기록
+ public void relay(String userName, String command) {
+     while (true) {
+         long waitMillis;
+         synchronized (this) {
+             if (!userName.equals(drawerName)) {   // 라운드가 끝났거나 다른 사람 차례 -> 버림
+                 return;
+             }
+             if (append(command)) {
+                 room.recordDrawCommand(command);
+                 if (!flushScheduled) {
+                     flushScheduled = true;
+                     scheduler.schedule(this::scheduledFlush, windowMillis, TimeUnit.MILLISECONDS);
+                 }
+                 return;
+             }
+             if (tryFlush()) {
+                 continue;
+             }
+             waitMillis = tokenWaitMillis();
+         }
+         try {
+             Thread.sleep(waitMillis);
+         } catch (InterruptedException e) {
+             Thread.currentThread().interrupt();
+             return;
+         }
+     }
+ }
+
+ // 모아 둔 명령에 합치기 -> 종류가 다르거나 이어지지 않거나 가득 차서 먼저 보내야 하면 false
+ private boolean append(String command) {
+     String[] parts = command.split(" ");
+     try {
+         switch (parts[0]) {
+             case "ERASE":   // ERASE 중심x 중심y 지우개크기
+                 int x = Integer.parseInt(parts[1]);
+                 int y = Integer.parseInt(parts[2]);
+                 int size = Integer.parseInt(parts[3]);
+                 if (pendingKind == null) {
+                     pendingKind = "ERASE";
+                     pendingSize = size;
+                 } else if (!"ERASE".equals(pendingKind) || pendingSize != size) {
+                     return false;
+                 }
+                 return addErasePoint(x, y);
+             case "DRAW":   // DRAW x1 y1 x2 y2 색상
+                 int x1 = Integer.parseInt(parts[1]);
+                 int y1 = Integer.parseInt(parts[2]);
+                 int x2 = Integer.parseInt(parts[3]);
+                 int y2 = Integer.parseInt(parts[4]);
+                 if (pendingKind == null) {
+                     pendingKind = "DRAW";
+                     pendingColor = parts[5];
+                     addPoint(x1, y1);
+                 } else if (!"DRAW".equals(pendingKind) || !pendingColor.equals(parts[5])
+                         || pointsX[pointCount - 1] != x1 || pointsY[pointCount - 1] != y1
+                         || pointCount >= maxPoints) {   // 이전 선분과 이어지지 않거나 색이 다르면 새 꺾은선
+                     return false;
+                 }
+                 addPoint(x2, y2);
+                 return true;
+             case "SHAPE":
+                 if ("SHAPE".equals(pendingKind) && command.equals(pendingShape)) {   // 같은 도형이 연달아 오면 무시
+                     return true;
+                 }
+                 if (pendingKind != null) {
+                     return false;
+                 }
+                 pendingKind = "SHAPE";
+                 pendingShape = command;
+                 return true;
+             default:
+                 return true;   // 모르는 명령은 중계하지 않음
+         }
+     } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+         return true;   // 잘못된 명령은 중계하지 않음
+     }
+ }
+
+ // 지우개 자국 추가 -> 직전 자국이 앞뒤 자국에 완전히 덮이면 그 자리를 새 자국으로 바꿈
+ // 클라이언트는 좌표마다 자국만 찍으므로 지워지는 영역은 원래 명령과 똑같음
+ private boolean addErasePoint(int x, int y) {
+     if (pointCount > 0 && pointsX[pointCount - 1] == x && pointsY[pointCount - 1] == y) {
+         return true;   // 같은 자리에 또 지운 경우
+     }
+     if (pointCount >= 2 && covered(pointsX[pointCount - 2], pointsY[pointCount - 2],
+             pointsX[pointCount - 1], pointsY[pointCount - 1], x, y)) {
+         pointsX[pointCount - 1] = x;
+         pointsY[pointCount - 1] = y;
+         return true;
+     }
+     if (pointCount >= maxPoints) {
+         return false;
+     }
+     addPoint(x, y);
+     return true;
+ }
+
+ // 가운데 자국(b)이 양옆 자국(a, c)의 합집합에 완전히 덮이는지
+ // 세 자국이 가로 또는 세로 한 줄에 순서대로 있고, a와 c가 빈틈 없이 이어지는 경우만 해당
+ private boolean covered(int ax, int ay, int bx, int by, int cx, int cy) {
+     if (ay == by && by == cy) {
+         return between(ax, bx, cx) && Math.abs(cx - ax) <= pendingSize;
+     }
+     if (ax == bx && bx == cx) {
+         return between(ay, by, cy) && Math.abs(cy - ay) <= pendingSize;
+     }
+     return false;
+ }
+
+ private static boolean between(int a, int b, int c) {
+     return (a <= b && b <= c) || (c <= b && b <= a);
+ }
+
+ private void addPoint(int x, int y) {
+     pointsX[pointCount] = x;
+     pointsY[pointCount] = y;
+     pointCount++;
+ }
+
+ // 모으는 시간이 지나면 전송 -> 토큰이 없으면 더 모았다가 토큰이 생길 때 보냄
+ private synchronized void scheduledFlush() {
+     flushScheduled = false;
+     if (pendingKind == null || tryFlush()) {
+         return;
+     }
+     flushScheduled = true;
+     scheduler.schedule(this::scheduledFlush, tokenWaitMillis(), TimeUnit.MILLISECONDS);
+ }
+
+ // 토큰이 있으면 하나 쓰고 모아 둔 명령 전송
+ private boolean tryFlush() {
+     if (pendingKind == null) {
+         return true;
+     }
+     refill();
+     if (tokens < 1) {
+         return false;
+     }
+     tokens -= 1;
+     room.broadcastMessage(takePending());
+     return true;
+ }
+
+ // 다음 토큰이 생길 때까지 남은 시간
+ private long tokenWaitMillis() {
+     return Math.max(1, (long) Math.ceil((1 - tokens) * 1000 / maxMessagesPerSecond));
+ }
+
+ private void refill() {
+     long now = System.nanoTime();
+     tokens = Math.min(maxMessagesPerSecond, tokens + (now - lastRefill) * maxMessagesPerSecond / 1e9);
+     lastRefill = now;
+ }
+
+ // 모아 둔 명령을 메시지 하나로 만들고 비움
+ private String takePending() {
+     String message;
+     switch (pendingKind) {
+         case "ERASE":
+             // 자국이 하나면 기존 ERASE 형식 그대로 보냄
+             message = pointCount == 1
+                     ? "ERASE " + pointsX[0] + " " + pointsY[0] + " " + pendingSize
+                     : "ERASE_PATH " + pendingSize + joinPoints();
+             break;
+         case "DRAW":
+             message = pointCount == 2
+                     ? "DRAW " + pointsX[0] + " " + pointsY[0] + " " + pointsX[1] + " " + pointsY[1] + " " + pendingColor
+                     : "DRAW_PATH " + pendingColor + joinPoints();
+             break;
+         default:
+             message = pendingShape;
+             break;
+     }
+     pendingKind = null;
+     pendingShape = null;
+     pointCount = 0;
+     return message;
+ }
+
+ private String joinPoints() {
+     StringBuilder points = new StringBuilder();
+     for (int i = 0; i < pointCount; i++) {
+         points.append(' ').append(pointsX[i]).append(' ').append(pointsY[i]);
+     }
+     return points.toString();
+ }
+}
@@ -0,0 +1,264 @@
+package catchmind;
+
+//GameRoom.java
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.*;
+
+import javax.swing.Timer;
+
+public class GameRoom {
+ private final int roomId; // 게임방 번호
+ private final Server server; // 게임방을 만든 서버
+ private final DrawRelay drawRelay; // 그리기 명령 중계
+ private final List<ClientHandler> clients = new CopyOnWriteArrayList<>(); // 게임방에 들어온 클라이언트 관리하는 리스트
+ private final Random random = new Random();  // 제시어를 위한 랜덤 객체
+ private final Set<String> usedWords = new HashSet<>();  // 이미 사용된 단어를 추적하기 위한 세트
+ private final Map<String, Integer> scores = new ConcurrentHashMap<>(); // 각 사용자의 점수 저장하는 맵
+ private final Set<String> correctGuessers = ConcurrentHashMap.newKeySet(); // 정답 맞힌 사용자 저장하는 세트
+ private final List<String> roundCommands = new ArrayList<>(); // 현재 라운드의 DRAW/SHAPE/ERASE 명령 (썸네일 렌더링용)
+ private final List<String> gallery = new ArrayList<>(); // 썸네일이 만들어진 라운드 목록 ("라운드:제시어")
+ // 제시어 목록
+ private final List<String> words = Arrays.asList(
+       "컴퓨터", "사과", "나무", "자동차", "사랑", "튤립", "강아지", "고양이", "학교", "손",
+         "향수", "마이크", "침대", "책", "지팡이", "멀티탭", "연필", "열쇠", "발자국", "세탁기",
+         "올림픽", "축구", "야구", "스마트폰", "유튜브", "전구", "칫솔", "에펠탑", "선풍기", "가위",
+         "포도", "탕후루", "병원", "의사", "판사", "경찰", "멀리뛰기", "배드민턴", "탁구", "마우스"
+ );
+
+ private Timer timer; //타이머
+ private int timeLeft = 30; //남은 시간
+ private int currentDrawingClientIndex = 0; //현재 그림을 그리는 클라이언트의 인덱스
+ private String currentWord; // 현재 라운드 단어
+ private volatile boolean finished = false; // 게임 종료 여부
+
+ private final int maxTurns = 5;  // 게임의 최대 라운드 수
+ private int currentTurn = 1; // 게임의 현재 라운드
+
+ public String getCurrentWord() {
+     return currentWord;
+ }
+
+ public Set<String> getCorrectGuessers() {
+     return correctGuessers;
+ }
+
+ public List<ClientHandler> getClients() {
+     return clients;
+ }
+
+ public Map<String, Integer> getScores() {
+     return scores;
+ }
+
+ public DrawRelay getDrawRelay() {
+     return drawRelay;
+ }
+
+ public int getRoomId() {
+     return roomId;
+ }
+
+ public boolean isFinished() {
+     return finished;
+ }
+
+
+ public GameRoom(int roomId, List<ClientHandler> players, Server server) {
+     this.roomId = roomId;
+     this.server = server;
+     this.clients.addAll(players);
+     this.drawRelay = new DrawRelay(this, server.getRelayScheduler());
+     timer = new Timer(1000, e -> {
+        if (timeLeft > 0) { // 시간이 남아있으면, 모든 클라이언트에게 타이머 업데이트 전송
+             broadcastMessage("TIMER " + timeLeft);
+             timeLeft--;
+         } else { // 시간이 다 되면 타이머를 멈추고, 그림을 그리는 사용자 변경
+             timer.stop();
+             if (correctGuessers.size() == clients.size() - 1) {  // 모든 유저가 정답을 맞히면, 그리는 사람 점수 업데이트
+                 rewardDrawer();
+             }
+             changeDrawingClient();
+         }
+     });
+ }
+
+ // 게임 시작 -> 매칭된 인원이 모두 모인 뒤에 호출됨
+ public void start() {
+     // 매칭된 뒤 시작 전에 연결이 끊긴 플레이어는 제외 (시작 도중 끊기면 setRoom에서 처리)
+     clients.removeIf(ClientHandler::isClosed);
+     if (clients.isEmpty()) {
+         finished = true;
+         server.removeRoom(this);
+         return;
+     }
+     for (ClientHandler client : clients) {
+         scores.put(client.getUserName(), 0);
+         client.setRoom(this);
+     }
+     broadcastScoreUpdate();
+     for (ClientHandler client : clients) {
+         broadcastMessage("CHAT " + client.getUserName() + "님이 입장하셨습니다.");
+     }
+     broadcastMessage("CHAT 게임방 #" + roomId + " (" + clients.size() + "명) 게임을 시작합니다.");
+     changeDrawingClient();
+ }
+
+ // 클라이언트 퇴장 처리
+ public void removeClient(ClientHandler client) {
+     if (!clients.remove(client)) {   // 이미 퇴장 처리됨
+         return;
+     }
+     scores.remove(client.getUserName());
+     broadcastScoreUpdate();
+     broadcastMessage("CHAT " + client.getUserName() + "님이 퇴장하셨습니다.");
+     // 남은 사람이 없으면 게임방 정리
+     if (clients.isEmpty()) {
+         timer.stop();
+         finished = true;
+         server.removeRoom(this);
+     }
+ }
+
+ private void changeDrawingClient() {
+     // 클라이언트가 없으면 무시
+     if (clients.size() == 0) {
+         return;
+     }
+     drawRelay.endRound();   // 이전 라운드 그림을 마저 보내고 더 이상 명령을 받지 않음
+     finishRound();
+
+     // 현재 턴이 최대 턴 수의 이하일 때
+     if (currentTurn <= maxTurns) {
+        // 새 라운드 시작 메시지를 모든 클라이언트에게 전송
+         broadcastMessage("CHAT ======Round " + currentTurn + "======");
+        // 다음으로 입장한 클라이언트가 그리기 담당자로 결정
+         currentDrawingClientIndex = (currentDrawingClientIndex + 1) % clients.size();
+         ClientHandler currentDrawer = clients.get(currentDrawingClientIndex);
+         correctGuessers.clear();
+         drawRelay.startRound(currentDrawer.getUserName());   // 그리기 담당자 교체
+
+         do {  // 랜덤으로 새로운 제시어 선택
+             currentWord = words.get(random.nextInt(words.size()));
+         } while (usedWords.contains(currentWord));
+
+         usedWords.add(currentWord);
+         if (usedWords.size() == words.size()) {
+             usedWords.clear();
+         }
+
+         // 모든 클라이언트에게 제시어와 그리는 사람을 알림 -> 클라이언트 측에서 그림 담당자만 제시어 볼 수 있도록 해놨음
+         broadcastMessage("DRAWING " + currentDrawer.getUserName());
+         broadcastMessage("WORD " + currentWord);
+
+         // 현재 그리기 담당자에게 차례임을 알림
+         currentDrawer.send("CHAT " + "현재 당신의 차례입니다.");
+         startTimer();
+         currentTurn++;
+     } else {  // 최대 턴수를 초과하면 게임 종료
+         finished = true;
+         broadcastMessage("GAME_OVER");
+         broadcastScoreUpdate();
+
+         // 점수 순으로 순위 계산
+         List<String> sortedUsernames = calculateRankings();
+
+         // 각 사용자에게 최종 순위 알림
+         StringBuilder popupMessage = new StringBuilder("게임이 종료되었습니다.\n\n=======[순위]=======\r\n"
+               + "\n");
+         for (int i = 0; i < sortedUsernames.size(); i++) {
+             String username = sortedUsernames.get(i);
+             int rank = i + 1;
+             int score = scores.getOrDefault(username, 0);
+             popupMessage.append(rank).append("등: ").append(username).append(" (").append(score).append("점)\n");
+             // 다음 매칭에 쓰일 점수 기록 남기기
+             server.getMatchmaker().recordResult(username, score);
+         }
+
+         broadcastMessage("CHAT " + popupMessage.toString()); // 순위 정보를 함께 보냄
+         // 라운드별 그림 목록 전송 -> 클라이언트가 THUMB 요청으로 썸네일을 받아감
+         broadcastMessage("GALLERY " + roomId + " " + String.join(" ", gallery));
+         server.getThumbnailRenderer().exportGallery(roomId, maxTurns);
+         server.removeRoom(this);
+     }
+ }
+
+ // 그림 명령 기록 -> DrawRelay가 그리기 담당자를 확인한 뒤 호출
+ public void recordDrawCommand(String command) {
+     synchronized (roundCommands) {
+         roundCommands.add(command);
+     }
+ }
+
+ // 방금 끝난 라운드의 그림을 썸네일 렌더러에 넘김 -> 렌더링은 워커 스레드에서 하므로 타이머가 멈추지 않음
+ private void finishRound() {
+     if (currentTurn == 1) {   // 아직 진행한 라운드가 없음
+         return;
+     }
+     List<String> commands;
+     synchronized (roundCommands) {
+         commands = new ArrayList<>(roundCommands);
+         roundCommands.clear();
+     }
+     int round = currentTurn - 1;
+     if (server.getThumbnailRenderer().submitRound(roomId, round, currentWord, commands)) {
+         gallery.add(round + ":" + currentWord);
+     }
+ }
+
+ // 그림을 그린 사용자에게 점수 보상
+ private void rewardDrawer() {
+    // 라운드마다 정해 둔 그리기 담당자 이름을 가져와서 점수 +10점
+     String drawerName = drawRelay.getDrawerName();
+     int newScore = scores.getOrDefault(drawerName, 0) + 10;
+     scores.put(drawerName, newScore);
+     // 모든 플레이어에게 점수 업데이트 메시지 전송
+     broadcastMessage("CHAT 모든 유저가 제시어를 맞혔습니다.\n그림을 그린 " + drawerName + "님은 점수를 획득합니다");
+     broadcastScoreUpdate();
+ }
+
+ // 순위 계산
+ private List<String> calculateRankings() {
+    // 점수에 따라 내림차순으로 정렬
+     List<String> sortedUsernames = scores.keySet().stream()
+             .sorted(Comparator.comparingInt(scores::get).reversed())
+             .collect(Collectors.toList());
+
+     return sortedUsernames;
+ }
+
+ // 타이머 시작
+ private void startTimer() {
+     timeLeft = 30;
+     timer.start();
+ }
+
+ // 게임방의 모든 클라이언트에게 점수 업데이트 메시지 전송
+ public void broadcastScoreUpdate() {
+     StringBuilder scoreMessage = new StringBuilder("SCORES ");
+     for (ClientHandler client : clients) {
+         String userName = client.getUserName();
+         Integer score = scores.get(userName);
+         if (score != null) {
+             scoreMessage.append(userName).append(": ").append(score).append("\n");
+         }
+     }
+     broadcastMessage(scoreMessage.toString().trim());
+ }
+
+ // 사용자 점수 업데이트
+ public void updateScore(String userName, int points) {
+     Map<String, Integer> scores = getScores();
+     int newScore = scores.getOrDefault(userName, 0) + points;
+     scores.put(userName, newScore);
+     broadcastScoreUpdate();
+ }
+
+ // 게임방의 모든 클라이언트에게 메시지 전송
+ public void broadcastMessage(String message) {
+     for (ClientHandler client : clients) {
+         client.send(message);
+     }
+ }
+}
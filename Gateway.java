@@ -0,0 +1,279 @@
+package catchmind;
+
+//Gateway.java
+import java.io.ByteArrayInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.*;
+
+// 클라이언트 연결을 받아서 게임방 키에 따라 여러 백엔드 Server 중 하나로 넘겨주는 게이트웨이
+// 첫 메시지(ROOM 게임방키)만 읽어서 백엔드를 고르고, 그 뒤로는 메시지를 해석하지 않고 바이트 그대로 전달함
+public class Gateway implements BackendRegistry.Listener {
+ private final int port; // 게이트웨이 포트 번호
+ private final BackendRegistry registry;
+ private final int virtualNodes = 100; // 백엔드당 가상 노드 수
+ private volatile ConsistentHashRing ring; // 백엔드가 바뀔 때마다 새로 만듦
+ private final Map<String, Set<Session>> sessions = new ConcurrentHashMap<>(); // 백엔드별 중계 중인 연결
+ private final Map<String, Pin> pins = new ConcurrentHashMap<>(); // 연결이 남아 있는 게임방 키 -> 그 키를 받은 백엔드
+ private final int publicGroupSize = 4; // 공개 대기열 플레이어를 몇 명씩 같은 백엔드로 보낼지 (백엔드 게임방 인원과 같게)
+ private final AtomicInteger publicJoins = new AtomicInteger(); // 지금까지 들어온 공개 대기열 플레이어 수
+ private final int firstFrameTimeoutMillis = 10000; // 첫 메시지(ROOM)를 기다리는 최대 시간
+
+ // 클라이언트 소켓과 백엔드 소켓 한 쌍
+ private static class Session {
+     final Socket client;
+     final Socket backend;
+     final String backendAddress; // 연결한 백엔드 주소
+     final String roomKey;
+     final AtomicBoolean released = new AtomicBoolean(false); // 게임방 키 고정 해제 여부
+
+     Session(Socket client, Socket backend, String backendAddress, String roomKey) {
+         this.client = client;
+         this.backend = backend;
+         this.backendAddress = backendAddress;
+         this.roomKey = roomKey;
+     }
+
+     void close() {
+         closeQuietly(client);
+         closeQuietly(backend);
+     }
+ }
+
+ // 게임방 키를 받은 백엔드와 그 키로 연결 중인 수
+ private static class Pin {
+     final String backend;
+     int sessions;
+
+     Pin(String backend) {
+         this.backend = backend;
+     }
+ }
+
+ public Gateway(int port, BackendRegistry registry) {
+     this.port = port;
+     this.registry = registry;
+     this.ring = new ConsistentHashRing(registry.getBackends(), virtualNodes);
+     registry.addListener(this);
+ }
+
+ // 게이트웨이 시작
+ public void start() throws IOException {
+     try (ServerSocket serverSocket = new ServerSocket(port)) {
+         System.out.println("게이트웨이가 시작되었습니다: " + port + " -> " + registry.getBackends());
+
+         while (true) {
+             Socket clientSocket = serverSocket.accept();
+             new Thread(() -> route(clientSocket)).start();
+         }
+     }
+ }
+
+ // 새 백엔드가 들어오면 링이 바뀌어 일부 게임방 키가 새 백엔드 몫이 됨
+ // 그래도 연결이 남아 있는 키는 원래 백엔드로 계속 보냄 -> 절반쯤 대기 중인 일행이 두 백엔드로 갈라지지 않음
+ // 그 키의 연결이 모두 끊긴 뒤부터 새 링을 따름
+ @Override
+ public void backendJoined(String backend) {
+     ring = new ConsistentHashRing(registry.getBackends(), virtualNodes);
+ }
+
+ // 빠진 백엔드의 연결은 끊음 -> 클라이언트가 같은 게임방 키로 다시 접속하면 남은 백엔드로 배정됨
+ @Override
+ public void backendLeft(String backend) {
+     ring = new ConsistentHashRing(registry.getBackends(), virtualNodes);
+     Set<Session> orphaned = sessions.remove(backend);
+     if (orphaned != null) {
+         for (Session session : orphaned) {
+             session.close();
+             release(session);
+         }
+     }
+ }
+
+ // 첫 메시지로 백엔드를 정하고 양방향 중계 시작
+ private void route(Socket clientSocket) {
+     try {
+         InputStream clientIn = clientSocket.getInputStream();
+         clientSocket.setSoTimeout(firstFrameTimeoutMillis);   // ROOM을 보내지 않는 연결이 스레드를 계속 붙잡지 않도록
+         byte[] firstFrame = readFrame(clientIn);
+         clientSocket.setSoTimeout(0);   // 중계 중에는 시간 제한 없음
+         String roomKey = roomKeyOf(firstFrame);
+         // 게임방 키가 없으면 들어온 순서대로 publicGroupSize명씩 같은 키를 줌
+         // -> 한 묶음은 모두 같은 백엔드로 가서 함께 매칭되고, 다음 묶음은 다른 백엔드로 분산됨
+         if (roomKey.isEmpty()) {
+             roomKey = "public-" + publicJoins.getAndIncrement() / publicGroupSize;
+         }
+
+         // 연결이 남아 있는 키는 원래 백엔드를 먼저 시도
+         List<String> candidates = ring.routeAll(roomKey);
+         Pin pin = pins.get(roomKey);
+         if (pin != null && candidates.remove(pin.backend)) {
+             candidates.add(0, pin.backend);
+         }
+
+         // 연결이 안 되면 이 연결만 링의 다음 백엔드로 넘김 -> 백엔드 목록은 레지스트리가 관리
+         Socket connected = null;
+         String backend = null;
+         for (String candidate : candidates) {
+             try {
+                 connected = connect(candidate);
+                 backend = candidate;
+                 break;
+             } catch (IOException e) {
+                 System.out.println("백엔드 연결 실패: " + candidate + " " + e.getMessage());
+             }
+         }
+         if (connected == null) {
+             System.out.println("연결할 백엔드가 없습니다.");
+             clientSocket.close();
+             return;
+         }
+
+         Socket backendSocket = connected;
+         String target = backend;
+         Session session = new Session(clientSocket, backendSocket, target, roomKey);
+         pins.compute(roomKey, (k, p) -> {
+             if (p == null || !p.backend.equals(target)) {
+                 p = new Pin(target);
+             }
+             p.sessions++;
+             return p;
+         });
+         Set<Session> backendSessions = sessions.computeIfAbsent(target, k -> ConcurrentHashMap.newKeySet());
+         backendSessions.add(session);
+         try {
+             if (!ring.getNodes().contains(target)) {   // 연결하는 사이 백엔드가 빠졌으면 정리
+                 throw new IOException("백엔드가 빠졌습니다: " + target);
+             }
+             OutputStream backendOut = backendSocket.getOutputStream();
+             backendOut.write(firstFrame);
+             backendOut.flush();
+         } catch (IOException e) {
+             backendSessions.remove(session);
+             session.close();
+             release(session);
+             return;
+         }
+         new Thread(() -> pipe(backendSocket, clientSocket, session, target)).start();
+         pipe(clientSocket, backendSocket, session, target);
+     } catch (IOException e) {
+         closeQuietly(clientSocket);
+     }
+ }
+
+ // 한쪽에서 읽은 바이트를 그대로 다른 쪽에 씀 -> 한쪽이 끊기면 둘 다 닫음
+ private void pipe(Socket from, Socket to, Session session, String backend) {
+     byte[] buffer = new byte[8192];
+     try {
+         InputStream in = from.getInputStream();
+         OutputStream out = to.getOutputStream();
+         int read;
+         while ((read = in.read(buffer)) != -1) {
+             out.write(buffer, 0, read);
+             out.flush();
+         }
+     } catch (IOException e) {
+         // 연결 종료
+     } finally {
+         session.close();
+         Set<Session> backendSessions = sessions.get(backend);
+         if (backendSessions != null) {
+             backendSessions.remove(session);
+         }
+         release(session);
+     }
+ }
+
+ // 끝난 연결을 게임방 키 고정에서 뺌 -> 마지막 연결이면 다음부터 새 링을 따름
+ private void release(Session session) {
+     if (!session.released.compareAndSet(false, true)) {   // 양쪽 중계 스레드가 모두 호출함
+         return;
+     }
+     pins.computeIfPresent(session.roomKey, (k, p) -> {
+         if (!p.backend.equals(session.backendAddress)) {   // 그 사이 다른 백엔드로 옮겨 간 키
+             return p;
+         }
+         p.sessions--;
+         return p.sessions == 0 ? null : p;
+     });
+ }
+
+ // writeUTF 형식의 메시지 하나(2바이트 길이 + 내용)를 그대로 읽음
+ private static byte[] readFrame(InputStream in) throws IOException {
+     DataInputStream input = new DataInputStream(in);
+     int length = input.readUnsignedShort();
+     byte[] frame = new byte[length + 2];
+     frame[0] = (byte) (length >>> 8);
+     frame[1] = (byte) length;
+     input.readFully(frame, 2, length);
+     return frame;
+ }
+
+ // 첫 메시지가 "ROOM 게임방키"이면 키 반환, 아니면 빈 문자열
+ private static String roomKeyOf(byte[] frame) throws IOException {
+     String message = new DataInputStream(new ByteArrayInputStream(frame)).readUTF();
+     return message.startsWith("ROOM ") ? message.substring(5).trim() : "";
+ }
+
+ private static Socket connect(String backend) throws IOException {
+     int colon = backend.lastIndexOf(':');
+     Socket socket = new Socket();
+     socket.connect(new InetSocketAddress(backend.substring(0, colon), Integer.parseInt(backend.substring(colon + 1))), 3000);
+     socket.setTcpNoDelay(true);
+     return socket;
+ }
+
+ private static void closeQuietly(Socket socket) {
+     try {
+         socket.close();
+     } catch (IOException e) {
+         // 이미 닫힘
+     }
+ }
+
+ // 표준 입력으로 백엔드 추가/제거 -> 서비스 디스커버리 이벤트 흉내
+ private static void readConsole(BackendRegistry registry) {
+     try (BufferedReader console = new BufferedReader(new InputStreamReader(System.in))) {
+         String line;
+         while ((line = console.readLine()) != null) {
+             String[] command = line.trim().split("\\s+");
+             if (command.length == 2 && command[0].equals("add")) {
+                 registry.register(command[1]);
+             } else if (command.length == 2 && command[0].equals("remove")) {
+                 registry.deregister(command[1]);
+             } else if (command[0].equals("list")) {
+                 System.out.println("백엔드 목록: " + registry.getBackends());
+             }
+         }
+     } catch (IOException e) {
+         e.printStackTrace();
+     }
+ }
+
+ // 예) java catchmind.Gateway 54321 localhost:54322 localhost:54323
+ public static void main(String[] args) {
+     int port = args.length > 0 ? Integer.parseInt(args[0]) : 54321;
+     BackendRegistry registry = new BackendRegistry();
+     for (int i = 1; i < args.length; i++) {
+         registry.register(args[i]);
+     }
+     Thread console = new Thread(() -> readConsole(registry));
+     console.setDaemon(true);
+     console.start();
+     try {
+         new Gateway(port, registry).start();  // 게이트웨이 시작
+     } catch (IOException e) {
+         e.printStackTrace();
+     }
+ }
+}
@@ -0,0 +1,150 @@
+package catchmind;
+
+//Matchmaker.java
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.*;
+
+// 대기열에 들어온 플레이어를 점수 기록이 비슷한 사람끼리 묶어 게임방을 만드는 클래스
+// 입장은 락 없는 큐에 넣기만 하고, 실제 매칭은 매칭 스레드 하나가 주기적으로 몰아서 처리함
+// 점수 기록은 서버가 접속마다 새로 붙이는 이름(User번호)으로 저장하므로 한 번의 접속 동안만 유지됨
+// -> 다시 접속하면(자동 재접속 포함) 새 이름을 받아 기록 없이 0점부터 매칭됨
+public class Matchmaker {
+ private final Server server; // 게임방을 만들어 줄 서버
+ private final int roomSize; // 목표 게임방 인원
+ private final int minRoomSize = 2; // 게임을 시작할 수 있는 최소 인원
+ private final long maxWaitMillis; // 최대 대기 시간 -> 넘기면 인원이 모자라도 게임방 생성
+ private final int baseTolerance = 20; // 처음 허용하는 점수 차이
+ private final long matchIntervalMillis = 100; // 매칭 주기
+
+ private final Queue<Ticket> incoming = new ConcurrentLinkedQueue<>(); // 새로 들어온 플레이어 (여러 스레드에서 접근)
+ private final Map<String, List<Ticket>> pools = new HashMap<>(); // 게임방 키별로 매칭을 기다리는 플레이어 (매칭 스레드에서만 접근)
+ private final Map<String, Integer> ratings = new ConcurrentHashMap<>(); // 사용자별 점수 기록 (접속 이름 기준, 재접속하면 사라짐)
+ private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+     Thread thread = new Thread(r, "matchmaker");
+     thread.setDaemon(true);
+     return thread;
+ });
+
+ // 대기열 정보 (플레이어, 게임방 키, 매칭 점수, 입장 시각)
+ private static class Ticket {
+     final ClientHandler client;
+     final String pool;
+     final int rating;
+     final long enqueuedAt;
+
+     Ticket(ClientHandler client, String pool, int rating, long enqueuedAt) {
+         this.client = client;
+         this.pool = pool;
+         this.rating = rating;
+         this.enqueuedAt = enqueuedAt;
+     }
+ }
+
+ public Matchmaker(Server server, int roomSize, long maxWaitMillis) {
+     this.server = server;
+     this.roomSize = roomSize;
+     this.maxWaitMillis = maxWaitMillis;
+ }
+
+ // 매칭 스레드 시작
+ public void start() {
+     scheduler.scheduleWithFixedDelay(() -> {
+         try {
+             matchWaitingPlayers();
+         } catch (RuntimeException e) {
+             e.printStackTrace();
+         }
+     }, matchIntervalMillis, matchIntervalMillis, TimeUnit.MILLISECONDS);
+ }
+
+ // 대기열에 플레이어 추가 -> 큐에 넣기만 하므로 접속이 몰려도 막히지 않음
+ public void enqueue(ClientHandler client) {
+     if (!client.markQueued()) {   // 이미 대기열에 있는 플레이어
+         return;
+     }
+     int rating = ratings.getOrDefault(client.getUserName(), 0);
+     incoming.offer(new Ticket(client, client.getRoomKey(), rating, System.currentTimeMillis()));
+     client.send("CHAT 대기열에 입장했습니다. 다른 플레이어를 기다리는 중입니다...");
+ }
+
+ // 게임이 끝난 사용자의 점수 기록 -> 이전 기록과 평균을 내서 매칭 점수로 사용
+ public void recordResult(String userName, int score) {
+     ratings.merge(userName, score, (oldRating, newScore) -> (oldRating + newScore) / 2);
+ }
+
+ // 대기 중인 플레이어들을 게임방으로 묶기
+ private void matchWaitingPlayers() {
+     // 새로 들어온 플레이어를 모두 꺼내서 게임방 키별 대기 목록으로 옮김
+     Ticket ticket;
+     while ((ticket = incoming.poll()) != null) {
+         pools.computeIfAbsent(ticket.pool, k -> new ArrayList<>()).add(ticket);
+     }
+     long now = System.currentTimeMillis();
+     // 같은 게임방 키를 가진 플레이어끼리만 매칭
+     for (List<Ticket> waiting : pools.values()) {
+         matchPool(waiting, now);
+     }
+     pools.values().removeIf(List::isEmpty);
+ }
+
+ // 한 대기 목록 안에서 게임방 만들기
+ private void matchPool(List<Ticket> waiting, long now) {
+     // 대기 중에 연결이 끊긴 플레이어와 중복 입장한 플레이어는 제외
+     Set<ClientHandler> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+     waiting.removeIf(t -> t.client.isClosed() || !seen.add(t.client));
+     if (waiting.size() < minRoomSize) {
+         return;
+     }
+
+     // 점수 순으로 정렬 -> 가까운 점수끼리 이웃하게 됨
+     waiting.sort(Comparator.comparingInt(t -> t.rating));
+
+     // 1단계: 연속한 roomSize명의 점수 차이가 허용 범위 안이면 게임방 생성
+     int i = 0;
+     while (i + roomSize <= waiting.size()) {
+         List<Ticket> window = waiting.subList(i, i + roomSize);
+         int spread = window.get(roomSize - 1).rating - window.get(0).rating;
+         if (spread <= tolerance(window, now)) {
+             createRoom(window);
+         } else {
+             i++;
+         }
+     }
+
+     // 2단계: 최대 대기 시간을 넘긴 플레이어는 점수가 가까운 사람들과 인원이 모자라도 묶음
+     i = 0;
+     while (i < waiting.size() && waiting.size() >= minRoomSize) {
+         if (now - waiting.get(i).enqueuedAt < maxWaitMillis) {
+             i++;
+             continue;
+         }
+         int from = Math.max(0, Math.min(i - roomSize / 2, waiting.size() - roomSize));
+         int to = Math.min(waiting.size(), from + roomSize);
+         createRoom(waiting.subList(from, to));
+         i = from;
+     }
+ }
+
+ // 허용 점수 차이 -> 가장 오래 기다린 플레이어 기준으로 1초마다 10점씩 넓어짐
+ private int tolerance(List<Ticket> window, long now) {
+     long oldest = now;
+     for (Ticket t : window) {
+         oldest = Math.min(oldest, t.enqueuedAt);
+     }
+     return baseTolerance + (int) ((now - oldest) / 100);
+ }
+
+ // 대기 목록에서 꺼내 게임방 생성
+ private void createRoom(List<Ticket> matched) {
+     List<ClientHandler> players = new ArrayList<>();
+     for (Ticket t : matched) {
+         players.add(t.client);
+     }
+     matched.clear(); // subList를 비우면 대기 목록에서도 제거됨
+     server.createRoom(players);
+ }
+}
@@ -0,0 +1,256 @@
+package catchmind;
+
+//ThumbnailRenderer.java
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.*;
+
+import javax.imageio.ImageIO;
+
+// 라운드가 끝난 그림을 DRAW/SHAPE/ERASE 명령으로 다시 그려서 PNG 썸네일로 만드는 클래스
+// 게임 타이머나 그림 중계가 멈추지 않도록 크기가 정해진 작업 큐와 별도 스레드에서만 렌더링함
+public class ThumbnailRenderer {
+ public static final int CANVAS_WIDTH = 450;  // 클라이언트 그림판 크기
+ public static final int CANVAS_HEIGHT = 300;
+
+ // 요청할 수 있는 썸네일 크기
+ public enum Size {
+     SMALL(150, 100), MEDIUM(300, 200), FULL(CANVAS_WIDTH, CANVAS_HEIGHT);
+
+     final int width;
+     final int height;
+
+     Size(int width, int height) {
+         this.width = width;
+         this.height = height;
+     }
+ }
+
+ // 렌더링이 끝난 라운드 그림 (제시어, 원본 크기 PNG) -> 이미지는 PNG로만 보관해서 메모리를 아낌
+ private static class RoundImage {
+     final String word;
+     final byte[] png;
+
+     RoundImage(String word, byte[] png) {
+         this.word = word;
+         this.png = png;
+     }
+
+     public String getWord() {
+         return word;
+     }
+ }
+
+ private final int maxRounds = 256; // 보관할 라운드 그림 수
+ private final Path exportDir; // 게임이 끝나면 PNG 저장할 폴더 (null이면 저장 안 함)
+ private final ThreadPoolExecutor workers;
+ // 라운드별 렌더링 결과 -> 오래된 것부터 지움
+ private final Map<String, CompletableFuture<RoundImage>> rounds = Collections.synchronizedMap(
+         new LinkedHashMap<String, CompletableFuture<RoundImage>>(16, 0.75f, true) {
+             @Override
+             protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<RoundImage>> eldest) {
+                 if (size() > maxRounds) {
+                     pngCache.keySet().removeIf(k -> k.startsWith(eldest.getKey() + ":"));
+                     return true;
+                 }
+                 return false;
+             }
+         });
+ private final Map<String, CompletableFuture<byte[]>> pngCache = new ConcurrentHashMap<>(); // 크기별 PNG 인코딩 캐시
+
+ public ThumbnailRenderer(int threads, int queueCapacity, Path exportDir) {
+     this.exportDir = exportDir;
+     AtomicInteger threadCount = new AtomicInteger();
+     // 큐가 가득 차면 AbortPolicy로 거절 -> 호출한 게임 스레드는 기다리지 않고 해당 라운드만 건너뜀
+     this.workers = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+             new ArrayBlockingQueue<>(queueCapacity), r -> {
+                 Thread thread = new Thread(r, "thumbnail-" + threadCount.incrementAndGet());
+                 thread.setDaemon(true);
+                 thread.setPriority(Thread.MIN_PRIORITY);
+                 return thread;
+             }, new ThreadPoolExecutor.AbortPolicy());
+     this.workers.allowCoreThreadTimeOut(true);
+ }
+
+ // 끝난 라운드의 그림 렌더링 예약 -> 작업 큐가 가득 차면 false
+ public boolean submitRound(int roomId, int round, String word, List<String> commands) {
+     CompletableFuture<RoundImage> future;
+     try {
+         future = CompletableFuture.supplyAsync(() -> new RoundImage(word, encodePng(rasterize(commands))), workers);
+     } catch (RejectedExecutionException e) {
+         System.out.println("썸네일 렌더링 대기열이 가득 찼습니다: 게임방 #" + roomId + " " + round + "라운드");
+         return false;
+     }
+     rounds.put(key(roomId, round), future);
+     return true;
+ }
+
+ // 라운드 그림을 요청한 크기의 PNG로 반환 -> 같은 크기는 한 번만 인코딩
+ public CompletableFuture<byte[]> getPng(int roomId, int round, Size size) {
+     CompletableFuture<RoundImage> roundImage = rounds.get(key(roomId, round));
+     if (roundImage == null) {
+         return CompletableFuture.failedFuture(new NoSuchElementException(key(roomId, round)));
+     }
+     if (size == Size.FULL) {   // 원본 크기는 보관 중인 PNG 그대로
+         return roundImage.thenApply(r -> r.png);
+     }
+     String pngKey = key(roomId, round) + ":" + size;
+     CompletableFuture<byte[]> png = new CompletableFuture<>();
+     CompletableFuture<byte[]> cached = pngCache.putIfAbsent(pngKey, png);
+     if (cached != null) {
+         return cached;
+     }
+     // 렌더링이 끝나면 워커에서 축소 -> 렌더링이 실패했거나 워커 큐가 가득 차서 거절되면 요청만 실패시킴
+     roundImage.thenAcceptAsync(r -> encodeInto(png, r.png, size), workers)
+             .whenComplete((ignored, error) -> {
+                 if (error != null) {
+                     png.completeExceptionally(error);
+                 }
+             });
+     // 실패한 결과는 캐시하지 않음 -> 다음 요청 때 다시 시도
+     png.whenComplete((bytes, error) -> {
+         if (error != null) {
+             pngCache.remove(pngKey, png);
+         }
+     });
+     return png;
+ }
+
+ // 라운드 제시어 반환 (렌더링 전이면 null)
+ public String getWord(int roomId, int round) {
+     CompletableFuture<RoundImage> roundImage = rounds.get(key(roomId, round));
+     return roundImage != null && roundImage.isDone() && !roundImage.isCompletedExceptionally()
+             ? roundImage.join().getWord() : null;
+ }
+
+ // 게임이 끝난 방의 라운드 그림을 모두 PNG 파일로 내보내기
+ public void exportGallery(int roomId, int rounds) {
+     if (exportDir == null) {
+         return;
+     }
+     for (int round = 1; round <= rounds; round++) {
+         int r = round;
+         getPng(roomId, r, Size.FULL).thenAccept(png -> {
+             try {
+                 Files.createDirectories(exportDir);
+                 Path file;
+                 try {
+                     file = exportDir.resolve("room" + roomId + "_round" + r + "_" + getWord(roomId, r) + ".png");
+                 } catch (InvalidPathException e) {   // 파일 시스템 인코딩이 한글을 지원하지 않으면 제시어 빼고 저장
+                     file = exportDir.resolve("room" + roomId + "_round" + r + ".png");
+                 }
+                 Files.write(file, png);
+             } catch (IOException e) {
+                 System.out.println("썸네일 저장 실패: " + e.getMessage());
+             }
+         });
+     }
+ }
+
+ private static String key(int roomId, int round) {
+     return roomId + ":" + round;
+ }
+
+ // 클라이언트와 같은 방식으로 명령을 다시 그리기
+ static BufferedImage rasterize(List<String> commands) {
+     BufferedImage image = new BufferedImage(CANVAS_WIDTH, CANVAS_HEIGHT, BufferedImage.TYPE_INT_RGB);
+     Graphics2D g = image.createGraphics();
+     try {
+         g.setColor(Color.WHITE);
+         g.fillRect(0, 0, CANVAS_WIDTH, CANVAS_HEIGHT);
+         for (String command : commands) {
+             String[] parts = command.split(" ");
+             try {
+                 switch (parts[0]) {
+                     case "DRAW":   // DRAW x1 y1 x2 y2 색상
+                         g.setColor(new Color(Integer.parseInt(parts[5])));
+                         g.drawLine(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                                 Integer.parseInt(parts[3]), Integer.parseInt(parts[4]));
+                         break;
+                     case "SHAPE":  // SHAPE 도형타입 x y 너비 높이 색상
+                         int x = Integer.parseInt(parts[2]);
+                         int y = Integer.parseInt(parts[3]);
+                         int width = Integer.parseInt(parts[4]);
+                         int height = Integer.parseInt(parts[5]);
+                         g.setColor(new Color(Integer.parseInt(parts[6])));
+                         switch (parts[1]) {
+                             case "RECTANGLE":
+                                 g.drawRect(x, y, width, height);
+                                 break;
+                             case "FILLED_RECTANGLE":
+                                 g.fillRect(x, y, width, height);
+                                 break;
+                             case "OVAL":
+                                 g.drawOval(x, y, width, height);
+                                 break;
+                             case "FILLED_OVAL":
+                                 g.fillOval(x, y, width, height);
+                                 break;
+                         }
+                         break;
+                     case "ERASE":  // ERASE 중심x 중심y 지우개크기
+                         int brushSize = Integer.parseInt(parts[3]);
+                         g.setColor(Color.WHITE);
+                         g.fillRect(Integer.parseInt(parts[1]) - brushSize / 2, Integer.parseInt(parts[2]) - brushSize / 2,
+                                 brushSize, brushSize);
+                         break;
+                 }
+             } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                 // 잘못된 명령은 건너뜀
+             }
+         }
+     } finally {
+         g.dispose();
+     }
+     return image;
+ }
+
+ // 요청 크기로 축소
+ private static BufferedImage scale(BufferedImage source, Size size) {
+     BufferedImage scaled = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+     Graphics2D g = scaled.createGraphics();
+     try {
+         g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+         g.drawImage(source, 0, 0, size.width, size.height, null);
+     } finally {
+         g.dispose();
+     }
+     return scaled;
+ }
+
+ // 원본 PNG를 풀어서 축소한 뒤 다시 인코딩
+ private static void encodeInto(CompletableFuture<byte[]> png, byte[] fullPng, Size size) {
+     try {
+         BufferedImage image = ImageIO.read(new ByteArrayInputStream(fullPng));
+         png.complete(encodePng(scale(image, size)));
+     } catch (IOException | RuntimeException e) {
+         png.completeExceptionally(e);
+     }
+ }
+
+ private static byte[] encodePng(BufferedImage image) {
+     try {
+         ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+         ImageIO.write(image, "png", bytes);
+         return bytes.toByteArray();
+     } catch (IOException e) {
+         throw new UncheckedIOException(e);
+     }
+ }
+}